@@ -3,7 +3,12 @@ package interpreters;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.TreeMap;
+
+import interpreters.ExecutionResult.Fault;
 
 public class Assembler {
 	
@@ -12,11 +17,18 @@ public class Assembler {
 	private HashMap<String, Integer> data;
 	private HashMap<String, String> stringData;
 	private LinkedList<Integer> stack;
-    private String entry, output;
+    private String entry;
+    private StringBuilder output;
     //convert flags to one int
     private boolean carryFlag, parityFlag, adjustFlag, zeroFlag, signFlag, trapFlag, interruptFlag, directionFlag, overflowFlag;
 	private int compare;
 	
+	private Instruction[] instructions;
+	private HashMap<String, Integer> labels;
+	private HashSet<String> written;
+	private Fault fault;
+	private int faultLine;
+	
 	public Assembler() {}
 	
 	public Assembler(String code) {
@@ -34,22 +46,31 @@ public class Assembler {
 	/**
 	 * Prepares the code for execution. Removes comments and excess whitespace from the source program. 
 	 * Defines goto labels. Builds a clean registry for operation. 
+	 * Classifies every operand as an immediate, register or variable, and records the first load fault found.
 	 */
-	private void prepare() { // TODO throw compile time error
+	private void prepare() {
 
 		data = new HashMap<String, Integer>();
 		stringData = new HashMap<String, String>();
 		registry = new int[10];
 		syncFlags();
 		stack = new LinkedList<Integer>();
-		entry = output = new String();
+		entry = new String();
+		output = new StringBuilder();
 		compare = 0;
+		labels = new HashMap<String, Integer>();
+		written = new HashSet<String>();
+		fault = Fault.NONE;
+		faultLine = -1;
 		
+		// Statements of the text section; the source program is left untouched so that it may be run again
+		String[][] statements = new String[program.size()][];
 		boolean dataSegment = false;
 		
 		for(int i = 0; i < program.size(); i++) {
             
             String line = program.get(i);
+            statements[i] = new String[] { "" };
             
             // Discard comments
             if(line.contains(";"))
@@ -74,15 +95,24 @@ public class Assembler {
             } else if(dataSegment) {
             	// [variable-name]	define-directive	initial-value	[,initial-value]...
             	
+            	if(line.isEmpty())
+            		continue;
+            	
             	// TODO use functions to parse expressions
             	// TODO support double quotes, escaped quotes
             	String[] statement = line.split("[, ]+(?=[^']*(?:'[^']*'[^']*)*$)");
+            	if(statement.length < 2 || statement.length < 3 && !statement[1].equalsIgnoreCase("resb")) {
+            		fail(Fault.INVALID_ARITY, i);
+            		continue;
+            	}
             	switch(statement[1] = statement[1].toLowerCase()) {
             		// initialize constant
             		case "db": case "dw": case "dd": case "dq": case "dt": {
             			if(statement[2].startsWith("\'") || statement[2].startsWith("\""))
             				stringData.put(statement[0], statement[2].substring(1, statement[2].length() - 1));
-            			else data.put(statement[0], Integer.parseInt(statement[2]));
+            			else if(Operands.isImmediate(statement[2]))
+            				data.put(statement[0], Operands.parseImmediate(statement[2]));
+            			else fail(Fault.INVALID_OPERAND, i);
             		} break;
             		case "equ": {
             			stringData.put(statement[0], line.substring(statement[0].length() + statement[1].length() + 1));
@@ -95,37 +125,126 @@ public class Assembler {
             	// [label]	mnemonic	[operands]	[;comment]
             	
             	// Set entry point
-            	if(line.startsWith("global"))
-            		entry = line.substring(7);
+            	if(line.startsWith("global")) {
+            		if(line.length() > 7)
+            			entry = line.substring(7);
+            		else fail(Fault.INVALID_ARITY, i);
+            		continue;
+            	}
             	
             	// Define labels
                 if(line.contains(":")) {
                     String temp = line.split(" ")[0];
                     if(temp.endsWith(":")) {
-                        data.put(line.substring(0, line.indexOf(':')), i);
-                        line = line.substring(temp.length());
+                        labels.put(line.substring(0, line.indexOf(':')), i);
+                        line = line.substring(temp.length()).trim();
                     }
                 }
+                
+                // Split statement into parameters, and note every variable that is assigned without being read
+                statements[i] = line.split("[, ]+(?=[^']*(?:'[^']*'[^']*)*$)");
+                Mnemonic mnemonic = statements[i].length > 1 ? Mnemonic.of(statements[i][0]) : null;
+                if(mnemonic != null && mnemonic.assigns)
+                	written.add(statements[i][1]);
             }
             
-            program.set(i, line);
-            
         }
 		
+		instructions = new Instruction[statements.length];
+		for(int i = 0; i < statements.length; i++)
+			instructions[i] = classify(statements[i], i);
+		
+	}
+	
+	/**
+	 * Resolves the mnemonic of a statement and classifies its operands.
+	 * @param statement
+	 * @param line
+	 * @return instruction
+	 */
+	private Instruction classify(String[] statement, int line) {
+		
+		Instruction instruction = new Instruction();
+		
+		// A line of nothing but separators has neither a mnemonic nor operands
+		if(statement.length == 0) {
+			instruction.operands = new Operand[0];
+			fail(Fault.INVALID_ARITY, line);
+			return instruction;
+		}
+		
+		instruction.mnemonic = Mnemonic.of(statement[0]);
+		instruction.operands = new Operand[statement.length - 1];
+		
+		if(instruction.mnemonic == null) {
+			fail(Fault.UNKNOWN_INSTRUCTION, line);
+			return instruction;
+		}
+		
+		int arity = instruction.mnemonic.arity;
+		if(arity < 0 ? instruction.operands.length == 0 : instruction.operands.length != arity) {
+			fail(Fault.INVALID_ARITY, line);
+			return instruction;
+		}
+		
+		if(instruction.mnemonic.jumps) {
+			if(labels.containsKey(statement[1]))
+				instruction.target = labels.get(statement[1]);
+			else fail(Fault.UNKNOWN_LABEL, line);
+			return instruction;
+		}
+		
+		for(int j = 0; j < instruction.operands.length; j++) {
+			Operand operand = instruction.operands[j] = Operand.of(statement[j + 1]);
+			if(operand == null || operand.kind == Operand.Kind.LITERAL && instruction.mnemonic != Mnemonic.MSG)
+				fail(Fault.INVALID_OPERAND, line);
+			else if(j == 0 && instruction.mnemonic.writes && operand.kind == Operand.Kind.IMMEDIATE)
+				fail(Fault.INVALID_OPERAND, line);
+			else if(operand.kind == Operand.Kind.VARIABLE && !(j == 0 && instruction.mnemonic.assigns)
+					&& !data.containsKey(operand.name) && !written.contains(operand.name))
+				fail(Fault.UNKNOWN_REGISTER, line);
+		}
+		
+		return instruction;
+		
+	}
+	
+	/**
+	 * Records the fault unless one was already found on an earlier line.
+	 * Faults in the data section and directives are found before statements are classified, so they may arrive out of order.
+	 * @param fault
+	 * @param line
+	 */
+	private void fail(Fault fault, int line) {
+		if(this.fault == Fault.NONE || line < faultLine) {
+			this.fault = fault;
+			faultLine = line;
+		}
 	}
 	
 	/**
 	 * Prepares then executes the program. Returns the output of the program if terminated successfully. Else, returns null.
 	 * @return output
 	 */
-	public String run() { // TODO throw runtime error
+	public String run() {
+		ExecutionResult result = execute();
+		return result.isSuccess() ? result.getOutput() : null;
+	}
+	
+	/**
+	 * Prepares then executes the program, reporting load and runtime faults in the result rather than throwing.
+	 * @return result
+	 */
+	public ExecutionResult execute() {
 		
 		prepare();
+		if(fault != Fault.NONE)
+			return result(fault, faultLine);
 		
-        for(int i = 0; i < program.size(); i++) {
+        for(int i = 0; i < instructions.length; i++) {
             
-            // Split statement into parameters
-            String[] statement = program.get(i).split("[, ]+(?=[^']*(?:'[^']*'[^']*)*$)");
+            Instruction instruction = instructions[i];
+            Operand[] x = instruction.operands;
             
             /* 
              * TODO support memory addresses.
@@ -137,62 +256,88 @@ public class Assembler {
              * 		mov [eax+esi+edi], ebx	; At most 2 registers in address computation
              */
             
-            switch(statement[0]) {
+            switch(instruction.mnemonic) {
                 
-                case "mov":  move(statement[1], statement[2]); break;
-                case "push": pushStack(statement[1]); break;
+                case NOP: break;
                 
-                case "inc": increment(statement[1]); break;
-                case "dec": decrement(statement[1]); break;
+                case MOV:  move(x[0], x[1]); break;
+                case PUSH: pushStack(x[0]); break;
                 
-                case "add": add(statement[1], statement[2]); 		break;
-                case "sub":	subtract(statement[1], statement[2]); 	break;
-                case "mul": multiply(statement[1], statement[2]);	break;
-                case "div": divide(statement[1], statement[2]); 	break;
-                case "mod": mod(statement[1], statement[2]); 		break;
+                case INC: increment(x[0]); break;
+                case DEC: decrement(x[0]); break;
                 
-                case "cmp": compare(statement[1], statement[2]);	 break;
-                case "and": and(statement[1], statement[2]); 		 break;
-                case "or":  or(statement[1], statement[2]);			 break;
-                case "xor": exclusiveOr(statement[1], statement[2]); break;
+                case ADD: add(x[0], x[1]); 		break;
+                case SUB: subtract(x[0], x[1]); break;
+                case MUL: multiply(x[0], x[1]);	break;
+                case DIV: if(!divide(x[0], x[1])) return result(Fault.DIVISION_BY_ZERO, i); break;
+                case MOD: if(!mod(x[0], x[1]))    return result(Fault.DIVISION_BY_ZERO, i); break;
                 
-                case "jmp": 				 i = jump(statement[1]); break;
-                case "jne": if(compare != 0) i = jump(statement[1]); break;
-                case "je":  if(compare == 0) i = jump(statement[1]); break;
-                case "jge": if(compare >= 0) i = jump(statement[1]); break;
-                case "jg":  if(compare > 0)  i = jump(statement[1]); break;
-                case "jle": if(compare <= 0) i = jump(statement[1]); break;
-                case "jl":  if(compare < 0)  i = jump(statement[1]); break;
+                case CMP: compare(x[0], x[1]);	   break;
+                case AND: and(x[0], x[1]); 		   break;
+                case OR:  or(x[0], x[1]);		   break;
+                case XOR: exclusiveOr(x[0], x[1]); break;
                 
-                case "call": stack.add(i); i = jump(statement[1]); break;
-                case "ret": i = stack.removeLast(); break;
+                case JMP: 				   i = jump(instruction); break;
+                case JNE: if(compare != 0) i = jump(instruction); break;
+                case JE:  if(compare == 0) i = jump(instruction); break;
+                case JGE: if(compare >= 0) i = jump(instruction); break;
+                case JG:  if(compare > 0)  i = jump(instruction); break;
+                case JLE: if(compare <= 0) i = jump(instruction); break;
+                case JL:  if(compare < 0)  i = jump(instruction); break;
                 
-                case "msg": print(statement); break;
-                case "end": return output;
+                case CALL: stack.add(i); i = jump(instruction); break;
+                case RET: {
+                	if(stack.isEmpty())
+                		return result(Fault.STACK_UNDERFLOW, i);
+                	i = stack.removeLast();
+                } break;
                 
-                case "lahf":  loadFlagsIntoAHRegister(); 			   break;
-                case "sahf":  storeAHIntoFlags(); 					   break;
-                case "popf":  popStackIntoFlags(statement[1]); 		   break;
-                case "pushf": pushFlagRegisterOntoStack(statement[1]); break;
+                case MSG: print(x); break;
+                case END: return result(Fault.NONE, -1);
                 
-                case "cmc": complementCarryFlag(); break;
-                case "clc": clearCarryFlag(); 	   break;
-                case "stc": setCarryFlag();		   break;
+                case LAHF:  loadFlagsIntoAHRegister(); 		  break;
+                case SAHF:  storeAHIntoFlags(); 				  break;
+                case POPF:  popStackIntoFlags(x[0]); 		  break;
+                case PUSHF: pushFlagRegisterOntoStack(x[0]); break;
                 
-                case "cli": clearInterruptFlag(); break;
-                case "sti": setInterruptFlag();	  break;
+                case CMC: complementCarryFlag(); break;
+                case CLC: clearCarryFlag(); 	 break;
+                case STC: setCarryFlag();		 break;
                 
-                case "cld": clearDirectionFlag(); break;
-                case "std": setDirectionFlag();	  break;
+                case CLI: clearInterruptFlag(); break;
+                case STI: setInterruptFlag();	break;
+                
+                case CLD: clearDirectionFlag(); break;
+                case STD: setDirectionFlag();	break;
                 
             }
             
         }
         
-        return null;
+        return result(Fault.MISSING_END, -1);
         
 	}
 	
+	/**
+	 * Captures the output along with the 32-bit registers and variables.
+	 * Every variable the program names is reported; those never assigned read as zero.
+	 * @param fault
+	 * @param line
+	 * @return result
+	 */
+	private ExecutionResult result(Fault fault, int line) {
+		LinkedHashMap<String, Integer> registers = new LinkedHashMap<String, Integer>();
+		for(Register register : Arrays.asList(Register.values()).subList(0, 10))
+			registers.put(register.name(), read(register));
+		TreeMap<String, Integer> variables = new TreeMap<String, Integer>(data);
+		for(Instruction instruction : instructions)
+			for(Operand operand : instruction.operands)
+				if(operand != null && operand.kind == Operand.Kind.VARIABLE)
+					variables.putIfAbsent(operand.name, 0);
+		registers.putAll(variables);
+		return new ExecutionResult(fault, line, output.toString(), registers);
+	}
+	
 	/**
 	 * The push instruction places its operand onto the top of the hardware supported stack in memory.
 	 * Specifically, push first decrements ESP by 4, then places its operand into the contents of the 32-bit location at address [ESP].
@@ -206,11 +351,11 @@ public class Assembler {
 	 * Examples
 	 * push eax — push eax on the stack
 	 * push [var] — push the 4 bytes at address var onto the stack
-	 * @param string
+	 * @param x
 	 */
-	private void pushStack(String x) {
-		write("ESP", read("ESP") - 4);
-		write(read("ESP"), read(x));
+	private void pushStack(Operand x) {
+		write(Register.ESP, read(Register.ESP) - 4);
+		write(read(Register.ESP), valueOf(x));
 	}
 
 	private void write(int destination, int value) {
@@ -219,59 +364,55 @@ public class Assembler {
 	}
 
 	/**
-	 * Reads from the specified register; else reads value of identifier.
+	 * Reads from the specified register.
 	 * @param x
 	 * @return
 	 */
-	private int read(String x) {
+	private int read(Register x) {
 		
-		switch(x.toUpperCase()) {
+		switch(x) {
 		
 			// 32-bit data registers
-			case "EAX": return registry[0]; // Primary accumulator, I/O and arithmetic
-			case "EBX": return registry[1]; // Base register, indexing                
-			case "ECX": return registry[2]; // Count register, loop counters          
-			case "EDX": return registry[3]; // Data register, I/O and arithmetic      
+			case EAX: return registry[0]; // Primary accumulator, I/O and arithmetic
+			case EBX: return registry[1]; // Base register, indexing                
+			case ECX: return registry[2]; // Count register, loop counters          
+			case EDX: return registry[3]; // Data register, I/O and arithmetic      
 			// 32-bit index registers
-			case "EDI": return registry[4]; // Source Index, string operations
-			case "ESI": return registry[5]; // Destination Index, string operations
+			case EDI: return registry[4]; // Source Index, string operations
+			case ESI: return registry[5]; // Destination Index, string operations
 			// 32-bit pointer registers
-			case "ESP": return registry[6]; // Stack pointer
-			case "EBP": return registry[7]; // Base pointer
+			case ESP: return registry[6]; // Stack pointer
+			case EBP: return registry[7]; // Base pointer
 			// 32-bit control registers
-			case "EIP":    return registry[8];
-			case "EFLAGS": return registry[9];
+			case EIP:    return registry[8];
+			case EFLAGS: return registry[9];
 			
 			// 16-bit registers
-			case "AX": return registry[0] % 0x1_0000;
-			case "BX": return registry[1] % 0x1_0000;
-			case "CX": return registry[2] % 0x1_0000;
-			case "DX": return registry[3] % 0x1_0000;
+			case AX: return registry[0] % 0x1_0000;
+			case BX: return registry[1] % 0x1_0000;
+			case CX: return registry[2] % 0x1_0000;
+			case DX: return registry[3] % 0x1_0000;
 			
-			case "DI": return registry[4] % 0x1_0000;
-			case "SI": return registry[5] % 0x1_0000;
+			case DI: return registry[4] % 0x1_0000;
+			case SI: return registry[5] % 0x1_0000;
 			
-			case "SP": return registry[6] % 0x1_0000;
-			case "BP": return registry[7] % 0x1_0000;
+			case SP: return registry[6] % 0x1_0000;
+			case BP: return registry[7] % 0x1_0000;
 			
-			case "IP":    return registry[8] % 0x1_0000;
-			case "FLAGS": return registry[9] % 0x1_0000;
+			case IP:    return registry[8] % 0x1_0000;
+			case FLAGS: return registry[9] % 0x1_0000;
 			
 			// 8-bit registers
-			case "AH": return registry[0] % 0x1_0000 / 0x100;
-			case "AL": return registry[0] % 0x100;
-			case "BH": return registry[1] % 0x1_0000 / 0x100;
-			case "BL": return registry[1] % 0x100;
-			case "CH": return registry[2] % 0x1_0000 / 0x100;
-			case "CL": return registry[2] % 0x100;
-			case "DH": return registry[3] % 0x1_0000 / 0x100;
-			case "DL": return registry[3] % 0x100;
+			case AH: return registry[0] % 0x1_0000 / 0x100;
+			case AL: return registry[0] % 0x100;
+			case BH: return registry[1] % 0x1_0000 / 0x100;
+			case BL: return registry[1] % 0x100;
+			case CH: return registry[2] % 0x1_0000 / 0x100;
+			case CL: return registry[2] % 0x100;
+			case DH: return registry[3] % 0x1_0000 / 0x100;
+			case DL: return registry[3] % 0x100;
 			
-			default: {
-				// TODO Invalid register
-				// Check to see if it's an identifier
-				return data.get(x);
-			}
+			default: throw new AssertionError(x);
 		}
 	}
 	
@@ -280,55 +421,51 @@ public class Assembler {
 	 * @param x
 	 * @param value
 	 */
-	private void write(String x, int value) {
+	private void write(Register x, int value) {
 		
-		switch(x.toUpperCase()) {
+		switch(x) {
 		
 			// 32-bit data registers
-			case "EAX": registry[0] = value; break; // Primary accumulator, I/O and arithmetic
-			case "EBX": registry[1] = value; break; // Base register, indexing                
-			case "ECX": registry[2] = value; break; // Count register, loop counters          
-			case "EDX": registry[3] = value; break; // Data register, I/O and arithmetic      
+			case EAX: registry[0] = value; break; // Primary accumulator, I/O and arithmetic
+			case EBX: registry[1] = value; break; // Base register, indexing                
+			case ECX: registry[2] = value; break; // Count register, loop counters          
+			case EDX: registry[3] = value; break; // Data register, I/O and arithmetic      
 			// 32-bit index registers
-			case "EDI": registry[4] = value; break; // Source Index, string operations
-			case "ESI": registry[5] = value; break; // Destination Index, string operations
+			case EDI: registry[4] = value; break; // Source Index, string operations
+			case ESI: registry[5] = value; break; // Destination Index, string operations
 			// 32-bit pointer registers
-			case "ESP": registry[6] = value; break; // Stack pointer
-			case "EBP": registry[7] = value; break; // Base pointer
+			case ESP: registry[6] = value; break; // Stack pointer
+			case EBP: registry[7] = value; break; // Base pointer
 			// 32-bit control registers
-			case "EIP":    registry[8] = value; break;
-			case "EFLAGS": registry[9] = value; break;
+			case EIP:    registry[8] = value; break;
+			case EFLAGS: registry[9] = value; break;
 			
 			// 16-bit registers
-			case "AX": registry[0] = registry[0] / 0x1_0000 + value % 0x1_0000; break;
-			case "BX": registry[1] = registry[1] / 0x1_0000 + value % 0x1_0000; break;
-			case "CX": registry[2] = registry[2] / 0x1_0000 + value % 0x1_0000; break;
-			case "DX": registry[3] = registry[3] / 0x1_0000 + value % 0x1_0000; break;
+			case AX: registry[0] = registry[0] / 0x1_0000 + value % 0x1_0000; break;
+			case BX: registry[1] = registry[1] / 0x1_0000 + value % 0x1_0000; break;
+			case CX: registry[2] = registry[2] / 0x1_0000 + value % 0x1_0000; break;
+			case DX: registry[3] = registry[3] / 0x1_0000 + value % 0x1_0000; break;
 			
-			case "DI": registry[4] = registry[4] / 0x1_0000 + value % 0x1_0000; break;
-			case "SI": registry[5] = registry[5] / 0x1_0000 + value % 0x1_0000; break;
+			case DI: registry[4] = registry[4] / 0x1_0000 + value % 0x1_0000; break;
+			case SI: registry[5] = registry[5] / 0x1_0000 + value % 0x1_0000; break;
 			
-			case "SP": registry[6] = registry[6] / 0x1_0000 + value % 0x1_0000; break;
-			case "BP": registry[7] = registry[7] / 0x1_0000 + value % 0x1_0000; break;
+			case SP: registry[6] = registry[6] / 0x1_0000 + value % 0x1_0000; break;
+			case BP: registry[7] = registry[7] / 0x1_0000 + value % 0x1_0000; break;
 			
-			case "IP":    registry[8] = registry[8] / 0x1_0000 + value % 0x1_0000; break;
-			case "FLAGS": registry[9] = registry[9] / 0x1_0000 + value % 0x1_0000; syncFlags(); break;
+			case IP:    registry[8] = registry[8] / 0x1_0000 + value % 0x1_0000; break;
+			case FLAGS: registry[9] = registry[9] / 0x1_0000 + value % 0x1_0000; syncFlags(); break;
 			
 			// 8-bit registers
-			case "AH": registry[0] = registry[0] / 0x1_0000 + value % 0x100 * 0x100 + registry[0] % 0x100; break;
-			case "AL": registry[0] = registry[0] / 0x100 + value % 0x100; break;
-			case "BH": registry[1] = registry[1] / 0x1_0000 + value % 0x100 * 0x100 + registry[1] % 0x100; break;
-			case "BL": registry[1] = registry[1] / 0x100 + value % 0x100; break;
-			case "CH": registry[2] = registry[2] / 0x1_0000 + value % 0x100 * 0x100 + registry[2] % 0x100; break;
-			case "CL": registry[2] = registry[2] / 0x100 + value % 0x100; break;
-			case "DH": registry[3] = registry[3] / 0x1_0000 + value % 0x100 * 0x100 + registry[3] % 0x100; break;
-			case "DL": registry[3] = registry[3] / 0x100 + value % 0x100; break;
+			case AH: registry[0] = registry[0] / 0x1_0000 + value % 0x100 * 0x100 + registry[0] % 0x100; break;
+			case AL: registry[0] = registry[0] / 0x100 + value % 0x100; break;
+			case BH: registry[1] = registry[1] / 0x1_0000 + value % 0x100 * 0x100 + registry[1] % 0x100; break;
+			case BL: registry[1] = registry[1] / 0x100 + value % 0x100; break;
+			case CH: registry[2] = registry[2] / 0x1_0000 + value % 0x100 * 0x100 + registry[2] % 0x100; break;
+			case CL: registry[2] = registry[2] / 0x100 + value % 0x100; break;
+			case DH: registry[3] = registry[3] / 0x1_0000 + value % 0x100 * 0x100 + registry[3] % 0x100; break;
+			case DL: registry[3] = registry[3] / 0x100 + value % 0x100; break;
 			
-			default: {
-				// TODO Invalid register
-				// Check to see if it's an identifier
-				data.put(x, value);
-			}
+			default: throw new AssertionError(x);
 		}
 	}
 	
@@ -353,7 +490,7 @@ public class Assembler {
 	 * @param x
 	 * @param y
 	 */
-	private void move(String x, String y) {
+	private void move(Operand x, Operand y) {
 		write(x, valueOf(y));
 	}
 	
@@ -361,16 +498,16 @@ public class Assembler {
 	 * Increase the content of register x by one.
 	 * @param x
 	 */
-	private void increment(String x) {
-		write(x, read(x) + 1);
+	private void increment(Operand x) {
+		write(x, valueOf(x) + 1);
 	}
 
 	/**
 	 * Decrease the content of register x by one.
 	 * @param x
 	 */
-	private void decrement(String x) {
-		write(x, read(x) - 1);
+	private void decrement(Operand x) {
+		write(x, valueOf(x) - 1);
 	}
 	
 	/**
@@ -378,8 +515,8 @@ public class Assembler {
 	 * @param x
 	 * @param y
 	 */
-	private void add(String x, String y) {
-		write(x, read(x) + valueOf(y));
+	private void add(Operand x, Operand y) {
+		write(x, valueOf(x) + valueOf(y));
 	}
 	
 	/**
@@ -387,8 +524,8 @@ public class Assembler {
 	 * @param x
 	 * @param y
 	 */
-	private void subtract(String x, String y) {
-		write(x, read(x) - valueOf(y));
+	private void subtract(Operand x, Operand y) {
+		write(x, valueOf(x) - valueOf(y));
 	}
 	
 	/**
@@ -396,35 +533,45 @@ public class Assembler {
 	 * @param x
 	 * @param y
 	 */
-	private void multiply(String x, String y) {
-		write(x, read(x) * valueOf(y));
+	private void multiply(Operand x, Operand y) {
+		write(x, valueOf(x) * valueOf(y));
 	}
 	
 	/**
 	 * Same with integer division (i.e. register[x] /= y).
 	 * @param x
 	 * @param y
+	 * @return false if y is zero, leaving x unchanged
 	 */
-	private void divide(String x, String y) {
-		write(x, read(x) / valueOf(y));
+	private boolean divide(Operand x, Operand y) {
+		int divisor = valueOf(y);
+		if(divisor == 0)
+			return false;
+		write(x, valueOf(x) / divisor);
+		return true;
 	}
 	
 	/**
 	 * Divide register x by y and store the remainder in x.
 	 * @param x
 	 * @param y
+	 * @return false if y is zero, leaving x unchanged
 	 */
-	private void mod(String x, String y) {
-		write(x, read(x) % valueOf(y));
+	private boolean mod(Operand x, Operand y) {
+		int divisor = valueOf(y);
+		if(divisor == 0)
+			return false;
+		write(x, valueOf(x) % divisor);
+		return true;
 	}
 	
 	/**
-	 * Jumps to the label.
-	 * @param label
+	 * Jumps to the label resolved when the program was prepared.
+	 * @param instruction
 	 * @return
 	 */
-	private int jump(String label) {
-		return data.get(label) - 1;
+	private int jump(Instruction instruction) {
+		return instruction.target - 1;
 	}
 	
 	/**
@@ -432,14 +579,15 @@ public class Assembler {
 	 * The bits (lsb to msb) are: sign, zero, indeterminate, auxiliary carry, indeterminate, parity, indeterminate, and carry.
 	 */
 	private void loadFlagsIntoAHRegister() {
-		pushFlagRegisterOntoStack("AH");
+		write(Register.AH, read(Register.EFLAGS));
 	}
 	
 	/**
 	 * Loads flags (sign, zero, indeterminate, auxiliary carry, indeterminate, parity, indeterminate, and carry) with values from the AH register.
 	 */
 	private void storeAHIntoFlags() {
-		popStackIntoFlags("AH");
+		write(Register.EFLAGS, read(Register.AH));
+		syncFlags();
 	}
 	
 	/**
@@ -447,8 +595,8 @@ public class Assembler {
 	 * Stores a word in FLAGS; stores a long in EFLAGS.
 	 * @param x
 	 */
-	private void popStackIntoFlags(String x) {
-		write("EFLAGS", read(x));
+	private void popStackIntoFlags(Operand x) {
+		write(Register.EFLAGS, valueOf(x));
 		syncFlags();
 	}
 	
@@ -457,8 +605,8 @@ public class Assembler {
 	 * For a long, SP - 4 and copies EFLAGS to the new top of stack pointed to by SS:eSP.
 	 * @param x
 	 */
-	private void pushFlagRegisterOntoStack(String x) {
-		write(x, read("EFLAGS"));
+	private void pushFlagRegisterOntoStack(Operand x) {
+		write(x, read(Register.EFLAGS));
 	}
 
 	/**
@@ -529,8 +677,8 @@ public class Assembler {
 	 * @param x
 	 * @param y
 	 */
-	private void and(String x, String y) {
-		write(x, read(x) & read(y));
+	private void and(Operand x, Operand y) {
+		write(x, valueOf(x) & valueOf(y));
 	}
 	
 	/**
@@ -539,8 +687,8 @@ public class Assembler {
 	 * @param x
 	 * @param y
 	 */
-	private void or(String x, String y) {
-		write(x, read(x) | read(y));
+	private void or(Operand x, Operand y) {
+		write(x, valueOf(x) | valueOf(y));
 	}
 	
 	/**
@@ -549,19 +697,19 @@ public class Assembler {
 	 * @param x
 	 * @param y
 	 */
-	private void exclusiveOr(String x, String y) {
-		write(x, read(x) ^ read(y));		
+	private void exclusiveOr(Operand x, Operand y) {
+		write(x, valueOf(x) ^ valueOf(y));		
 	}
 
 	/**
-	 * Prints out the parameters of the given statement.
-	 * @param statement
+	 * Prints out the operands of the given statement.
+	 * @param x
 	 */
-	private void print(String[] statement) {
-		for(int i = 1; i < statement.length; i++)
-			if(statement[i].contains("\'"))
-				output += statement[i].substring(1, statement[i].length() - 1);
-			else output += valueOf(statement[i]);
+	private void print(Operand[] x) {
+		for(int i = 0; i < x.length; i++)
+			if(x[i].kind == Operand.Kind.LITERAL)
+				output.append(x[i].text);
+			else output.append(valueOf(x[i]));
 	}
 	
 	/**
@@ -569,21 +717,138 @@ public class Assembler {
 	 * @param x
 	 * @param y
 	 */
-	private void compare(String x, String y) {
+	private void compare(Operand x, Operand y) {
 		compare = Integer.compare(valueOf(x), valueOf(y));
 	}
 	
 	/**
-	 * Determines if the given string is a number or an identifier, and returns its value.
-	 * @param s
+	 * Returns the value of an immediate, register or variable. Variables that have not yet been written read as zero.
+	 * @param x
 	 * @return
 	 */
-	private Integer valueOf(String s) {
-		try {
-			return Integer.parseInt(s);
-		} catch(NumberFormatException nfe) {
-			return read(s);
+	private int valueOf(Operand x) {
+		switch(x.kind) {
+			case IMMEDIATE: return x.value;
+			case REGISTER:  return read(x.register);
+			default:		return data.getOrDefault(x.name, 0);
+		}
+	}
+	
+	/**
+	 * Writes the value to the register or variable x.
+	 * @param x
+	 * @param value
+	 */
+	private void write(Operand x, int value) {
+		if(x.kind == Operand.Kind.REGISTER)
+			write(x.register, value);
+		else data.put(x.name, value);
+	}
+	
+	private enum Register {
+		
+		EAX, EBX, ECX, EDX, EDI, ESI, ESP, EBP, EIP, EFLAGS,
+		AX, BX, CX, DX, DI, SI, SP, BP, IP, FLAGS,
+		AH, AL, BH, BL, CH, CL, DH, DL;
+		
+		private static final HashMap<String, Register> NAMES = new HashMap<String, Register>();
+		
+		static {
+			for(Register register : values())
+				NAMES.put(register.name(), register);
+		}
+		
+		/**
+		 * Returns the register with the given name, ignoring case, or null if there is none.
+		 */
+		private static Register of(String name) {
+			return NAMES.get(name.toUpperCase());
+		}
+		
+	}
+	
+	private enum Mnemonic {
+		
+		// arity is the number of operands, or -1 for one or more
+		NOP(0), MOV(2, true), PUSH(1),
+		INC(1, true), DEC(1, true), ADD(2, true), SUB(2, true), MUL(2, true), DIV(2, true), MOD(2, true),
+		CMP(2), AND(2, true), OR(2, true), XOR(2, true),
+		JMP(1), JNE(1), JE(1), JGE(1), JG(1), JLE(1), JL(1), CALL(1), RET(0),
+		MSG(-1), END(0),
+		LAHF(0), SAHF(0), POPF(1), PUSHF(1, true),
+		CMC(0), CLC(0), STC(0), CLI(0), STI(0), CLD(0), STD(0);
+		
+		private static final HashMap<String, Mnemonic> NAMES = new HashMap<String, Mnemonic>();
+		
+		static {
+			for(Mnemonic mnemonic : values())
+				NAMES.put(mnemonic == NOP ? "" : mnemonic.name().toLowerCase(), mnemonic);
 		}
+		
+		private final int arity;
+		private final boolean writes;  // the first operand is a destination
+		private final boolean assigns; // the first operand is a destination that is not read
+		private final boolean jumps;   // the operand is a label
+		
+		private Mnemonic(int arity) {
+			this(arity, false);
+		}
+		
+		private Mnemonic(int arity, boolean writes) {
+			this.arity = arity;
+			this.writes = writes;
+			this.assigns = name().equals("MOV") || name().equals("PUSHF");
+			this.jumps = name().startsWith("J") || name().equals("CALL");
+		}
+		
+		/**
+		 * Returns the mnemonic with the given name, or null if there is none.
+		 */
+		private static Mnemonic of(String name) {
+			return NAMES.get(name);
+		}
+		
+	}
+	
+	/**
+	 * An operand classified when the program is prepared.
+	 */
+	private static final class Operand {
+		
+		private enum Kind { IMMEDIATE, REGISTER, VARIABLE, LITERAL }
+		
+		private Kind kind;
+		private int value;
+		private Register register;
+		private String name, text;
+		
+		/**
+		 * Classifies the operand, or returns null if it is malformed.
+		 */
+		private static Operand of(String s) {
+			Operand operand = new Operand();
+			if(Operands.isLiteral(s)) {
+				operand.kind = Kind.LITERAL;
+				operand.text = s.substring(1, s.length() - 1);
+			} else if(Operands.isImmediate(s)) {
+				operand.kind = Kind.IMMEDIATE;
+				operand.value = Operands.parseImmediate(s);
+			} else if(Operands.isIdentifier(s)) {
+				operand.register = Register.of(s);
+				operand.kind = operand.register != null ? Kind.REGISTER : Kind.VARIABLE;
+				operand.name = s;
+			} else return null;
+			return operand;
+		}
+		
+	}
+	
+	private static final class Instruction {
+		
+		private Mnemonic mnemonic;
+		private Operand[] operands;
+		private int target; // line of the label for jumps and calls
+		
 	}
     
 }
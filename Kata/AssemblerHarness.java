@@ -0,0 +1,335 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import interpreters.Assembler;
+import interpreters.ExecutionResult;
+
+/**
+ * Differential conformance and throughput harness for AssemblerInterpreter and Assembler.
+ * Generates random programs from the instructions both engines share (mov, arithmetic, cmp and conditional jumps,
+ * call and ret, msg, end), runs each program on every engine, and checks that the output, fault and final registers agree.
+ * Most programs are valid; a few read labels, unassigned registers or return with an empty call stack, where the engines
+ * must fault the same way.
+ * Then reports the throughput of each engine over the same programs.
+ * <br /><br />
+ * Usage: java AssemblerHarness [programs] [seed] [iterations]
+ */
+public class AssemblerHarness {
+
+    private static final String[] REGISTERS = { "a", "b", "c", "d", "e" };
+    private static final String LATE = "z"; // only assigned after end, so always reads as zero
+    private static final String UNASSIGNED = "y";
+    private static final String[] CONDITIONS = { "jne", "je", "jge", "jg", "jle", "jl" };
+    private static final String[] ARITHMETIC = { "add", "sub", "mul", "div" };
+    private static final String[] LITERALS = { "r = ", ", ", "a: b", "", " " };
+    private static final int MAX_DEPTH = 3;
+
+    private final Random random;
+    private StringBuilder program;
+    private int functions, labels;
+
+    public AssemblerHarness(long seed) {
+        random = new Random(seed);
+    }
+
+    public static void main(String[] args) {
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        AssemblerHarness harness = new AssemblerHarness(seed);
+        String[] programs = new String[count];
+        for(int i = 0; i < count; i++)
+            programs[i] = harness.generate();
+
+        // Every engine and execution tier; the first is the reference the others are compared against.
+        // Registers are compared on faults as well as on success
+        final Assembler shared = new Assembler();
+        Map<String, Function<String, ExecutionResult>> engines = new LinkedHashMap<String, Function<String, ExecutionResult>>();
+        engines.put("AssemblerInterpreter.execute", AssemblerInterpreter::execute);
+        engines.put("Assembler.execute", program -> new Assembler(program).execute());
+        engines.put("Assembler.execute (reloaded)", program -> {
+            shared.load(program);
+            return shared.execute();
+        });
+
+        System.out.println("Seed " + seed + ", " + count + " programs");
+
+        int mismatches = conform(programs, engines);
+        System.out.println(mismatches == 0 ? "All engines agree" : mismatches + " programs disagree");
+
+        benchmark(programs, engines, iterations);
+
+        if(mismatches > 0)
+            System.exit(1);
+
+    }
+
+    /**
+     * Runs every program on every engine and prints each disagreement with the reference engine.
+     * @param programs
+     * @param engines
+     * @return number of programs on which some engine disagrees
+     */
+    private static int conform(String[] programs, Map<String, Function<String, ExecutionResult>> engines) {
+
+        int mismatches = 0;
+        ArrayList<String> names = new ArrayList<String>(engines.keySet());
+
+        for(int i = 0; i < programs.length; i++) {
+
+            ArrayList<String> differences = new ArrayList<String>();
+            ExecutionResult reference = engines.get(names.get(0)).apply(programs[i]);
+
+            for(int j = 1; j < names.size(); j++) {
+                String difference = compare(reference, engines.get(names.get(j)).apply(programs[i]));
+                if(difference != null)
+                    differences.add(names.get(j) + ": " + difference);
+            }
+
+            // The String tiers must agree with the results they summarise
+            String expected = reference.isSuccess() ? reference.getOutput() : null;
+            if(!Objects.equals(expected, AssemblerInterpreter.interpret(programs[i])))
+                differences.add("AssemblerInterpreter.interpret: " + AssemblerInterpreter.interpret(programs[i]));
+            if(!Objects.equals(expected, new Assembler(programs[i]).run()))
+                differences.add("Assembler.run: " + new Assembler(programs[i]).run());
+
+            if(!differences.isEmpty()) {
+                mismatches++;
+                System.out.println("Program " + i + " (" + names.get(0) + ": " + reference + " " + registers(reference) + ")");
+                for(String difference : differences)
+                    System.out.println("    " + difference);
+                System.out.println(programs[i]);
+            }
+
+        }
+
+        return mismatches;
+
+    }
+
+    /**
+     * Describes how the actual result differs from the expected one, or returns null if they agree.
+     * @param expected
+     * @param actual
+     * @return difference
+     */
+    private static String compare(ExecutionResult expected, ExecutionResult actual) {
+        if(expected.getFault() != actual.getFault() || expected.getLine() != actual.getLine())
+            return actual.getFault() + " at line " + actual.getLine();
+        if(!expected.getOutput().equals(actual.getOutput()))
+            return "output " + actual.getOutput();
+        if(!registers(expected).equals(registers(actual)))
+            return "registers " + registers(actual);
+        return null;
+    }
+
+    /**
+     * Returns the registers of the generated programs, leaving out the x86 registers only Assembler has.
+     * @param result
+     * @return registers
+     */
+    private static TreeMap<String, Integer> registers(ExecutionResult result) {
+        TreeMap<String, Integer> registers = new TreeMap<String, Integer>();
+        for(Map.Entry<String, Integer> register : result.getRegisters().entrySet())
+            if(Character.isLowerCase(register.getKey().charAt(0)))
+                registers.put(register.getKey(), register.getValue());
+        return registers;
+    }
+
+    /**
+     * Runs all programs on each engine for the given number of iterations, after an equal warm up, and prints the throughput.
+     * @param programs
+     * @param engines
+     * @param iterations
+     */
+    private static void benchmark(String[] programs, Map<String, Function<String, ExecutionResult>> engines, int iterations) {
+
+        long sink = 0, reference = 0;
+
+        for(Map.Entry<String, Function<String, ExecutionResult>> engine : engines.entrySet()) {
+
+            for(int i = 0; i < iterations; i++)
+                for(String program : programs)
+                    sink += engine.getValue().apply(program).getOutput().length();
+
+            long start = System.nanoTime();
+            for(int i = 0; i < iterations; i++)
+                for(String program : programs)
+                    sink += engine.getValue().apply(program).getOutput().length();
+            long elapsed = Math.max(1, System.nanoTime() - start);
+
+            if(reference == 0)
+                reference = elapsed;
+            long runs = (long) iterations * programs.length;
+            System.out.printf("%-30s %12.0f programs/s %10.0f ns/program %6.2fx%n",
+                    engine.getKey(), runs * 1e9 / elapsed, (double) elapsed / runs, (double) reference / elapsed);
+
+        }
+
+        // Keep the results observable so that the runs cannot be optimised away
+        if(sink == 42)
+            System.out.println();
+
+    }
+
+    /**
+     * Generates a program that terminates: jumps only go forward, except for loops on a dedicated counter,
+     * and functions only call functions defined after them.
+     * @return program
+     */
+    public String generate() {
+
+        program = new StringBuilder();
+        functions = random.nextInt(4);
+        labels = 0;
+
+        for(String register : REGISTERS)
+            line("mov " + register + ", " + immediate());
+        block(0, -1);
+        line("end");
+        line("mov " + LATE + ", " + immediate());
+
+        for(int function = 0; function < functions; function++) {
+            program.append('\n');
+            line("f" + function + ":");
+            block(1, function);
+            line("ret");
+        }
+
+        return program.toString();
+
+    }
+
+    /**
+     * Appends a random sequence of statements.
+     * @param depth nesting of loops and forward jumps
+     * @param function index of the enclosing function, or -1 in the main program
+     */
+    private void block(int depth, int function) {
+
+        int statements = 1 + random.nextInt(depth == 0 ? 12 : 5);
+
+        for(int i = 0; i < statements; i++) {
+
+            if(random.nextInt(100) == 0) {
+                edge(function);
+                continue;
+            }
+
+            int choice = random.nextInt(depth < MAX_DEPTH ? 10 : 7);
+            switch(choice) {
+
+                case 0: line("mov " + register() + ", " + source()); break;
+                case 1: line((random.nextBoolean() ? "inc " : "dec ") + register()); break;
+                case 2: case 3: {
+                    String operation = ARITHMETIC[random.nextInt(ARITHMETIC.length)];
+                    // Register divisors may be zero, which both engines must report the same way
+                    String source = operation.equals("div") && random.nextInt(4) != 0 ? nonZero() : source();
+                    line(operation + " " + register() + ", " + source);
+                } break;
+                case 4: {
+                    StringBuilder message = new StringBuilder("msg ");
+                    for(int j = random.nextInt(3); j >= 0; j--)
+                        message.append(random.nextBoolean() ? "'" + LITERALS[random.nextInt(LITERALS.length)] + "'" : source())
+                               .append(j > 0 ? ", " : "");
+                    line(message.toString());
+                } break;
+                case 5: case 6: {
+                    if(function + 1 < functions)
+                        line("call f" + (function + 1 + random.nextInt(functions - function - 1)));
+                    else line("inc " + register());
+                } break;
+
+                case 7: case 8: {
+                    // Forward jump over a nested block
+                    String label = "l" + labels++;
+                    if(random.nextInt(5) == 0)
+                        line("jmp " + label);
+                    else {
+                        line("cmp " + source() + ", " + source());
+                        line(CONDITIONS[random.nextInt(CONDITIONS.length)] + " " + label);
+                    }
+                    block(depth + 1, function);
+                    line(label + ":");
+                } break;
+                case 9: {
+                    // Counted loop; the counter is only written by the loop itself, and is distinct for every function
+                    String label = "l" + labels++, counter = "k" + depth + (function < 0 ? "" : "f" + function);
+                    line("mov " + counter + ", " + (1 + random.nextInt(4)));
+                    line(label + ":");
+                    block(depth + 1, function);
+                    line("dec " + counter);
+                    line("cmp " + counter + ", 0");
+                    line("jg " + label);
+                } break;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Appends a statement where the engines are most likely to differ: reads of registers before they are assigned,
+     * reads of labels and unassigned registers, which fail to load, and ret. In the main program ret underflows the call stack;
+     * in a function it returns early when a comparison holds.
+     * @param function index of the enclosing function, or -1 in the main program
+     */
+    private void edge(int function) {
+        switch(random.nextInt(6)) {
+            case 0:  line("msg " + LATE + ", ' '"); break;
+            case 1:  line((random.nextBoolean() ? "inc " : "dec ") + LATE); break;
+            case 2:  line("add " + register() + ", " + LATE); break;
+            case 3:  line((random.nextBoolean() ? "inc " : "dec ") + UNASSIGNED); break;
+            case 4:  line((random.nextBoolean() ? "msg l" : "mov " + register() + ", l") + random.nextInt(labels + 1)); break;
+            default: {
+                if(function < 0)
+                    line("ret");
+                else {
+                    String label = "l" + labels++;
+                    line("cmp " + source() + ", " + source());
+                    line(CONDITIONS[random.nextInt(CONDITIONS.length)] + " " + label);
+                    line("ret");
+                    line(label + ":");
+                }
+            } break;
+        }
+    }
+
+    private void line(String statement) {
+        program.append(statement.endsWith(":") ? "" : "    ").append(statement);
+        if(random.nextInt(8) == 0)
+            program.append(" ; ").append(statement);
+        program.append('\n');
+    }
+
+    private String register() {
+        return REGISTERS[random.nextInt(REGISTERS.length)];
+    }
+
+    private String source() {
+        return random.nextBoolean() ? register() : immediate();
+    }
+
+    private String immediate() {
+        // Mostly small values, with the occasional extreme one to exercise overflow
+        switch(random.nextInt(10)) {
+            case 0:  return String.valueOf(random.nextInt());
+            case 1:  return String.valueOf(Integer.MIN_VALUE);
+            default: return String.valueOf(random.nextInt(41) - 20);
+        }
+    }
+
+    private String nonZero() {
+        int value = random.nextInt(20) + 1;
+        return String.valueOf(random.nextBoolean() ? value : -value);
+    }
+
+}
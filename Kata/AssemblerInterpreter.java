@@ -1,94 +1,310 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+import interpreters.ExecutionResult;
+import interpreters.ExecutionResult.Fault;
+import interpreters.Operands;
 
 public class AssemblerInterpreter {
-	
+
+    // Opcodes, resolved from mnemonics when the program is loaded
+    private static final int NOP = 0, MOV = 1, INC = 2, DEC = 3, ADD = 4, SUB = 5, MUL = 6, DIV = 7,
+                             JMP = 8, CMP = 9, JNE = 10, JE = 11, JGE = 12, JG = 13, JLE = 14, JL = 15,
+                             CALL = 16, RET = 17, MSG = 18, END = 19;
+
+    private static final HashMap<String, Integer> OPCODES = new HashMap<String, Integer>();
+
+    static {
+        String[] mnemonics = { "", "mov", "inc", "dec", "add", "sub", "mul", "div",
+                               "jmp", "cmp", "jne", "je", "jge", "jg", "jle", "jl",
+                               "call", "ret", "msg", "end" };
+        for(int opcode = 0; opcode < mnemonics.length; opcode++)
+            OPCODES.put(mnemonics[opcode], opcode);
+    }
+
+    /**
+     * Runs the program and returns its output, or null if it did not terminate at an end instruction.
+     * @param input
+     * @return output
+     */
     public static String interpret(final String input) {
-      
-        // convert input into a list of lines
-        ArrayList<String> program = new ArrayList<String>(Arrays.asList(input.split("\n")));
-        
-        HashMap<String, Integer> labels = new HashMap<String, Integer>();
-        LinkedList <Integer> stack = new LinkedList<Integer>();
-        HashMap<String, Integer> registry = new HashMap<String, Integer>();
+        ExecutionResult result = execute(input);
+        return result.isSuccess() ? result.getOutput() : null;
+    }
+
+    /**
+     * Loads and runs the program, reporting load and runtime faults in the result rather than throwing.
+     * @param input
+     * @return result
+     */
+    public static ExecutionResult execute(final String input) {
+
+        Loader loader = new Loader();
+        Instruction[] program = loader.load(input);
+
+        int[] registry = new int[loader.registers.size()];
+        if(loader.fault != Fault.NONE)
+            return result(loader, loader.fault, loader.faultLine, "", registry);
+
+        int[] stack = new int[16];
+        int depth = 0;
         int compare = 0;
-        String output = new String();
-      
-        for(int i = 0; i < program.size(); i++) {
-            // retrieve instruction line
-            String instruction = program.get(i);
-            // purge comments
-            if(instruction.contains(";"))
-                instruction = instruction.substring(0, instruction.indexOf(';'));
-            // remove leading/trailing whitespaces
-            instruction = instruction.trim();
-            // remove excess spaces between parameters, excluding String literals
-            instruction.replaceAll("[\\s]+(?=[^']*(?:'[^']*'[^']*)*$)", " ");
-          
-            if(instruction.contains(":")) {
-                String temp = instruction.split(" ")[0];
-                if(temp.endsWith(":")) {
-                    labels.put(instruction.substring(0, instruction.indexOf(':')), i);
-                    instruction = instruction.substring(temp.length());
+        StringBuilder output = new StringBuilder();
+
+        for(int i = 0; i < program.length; i++) {
+
+            Instruction instruction = program[i];
+
+            switch(instruction.opcode) {
+
+                case MOV: registry[instruction.x] = valueOf(registry, instruction.immediate, instruction.y); break;
+
+                case INC: registry[instruction.x]++; break;
+                case DEC: registry[instruction.x]--; break;
+
+                case ADD: registry[instruction.x] += valueOf(registry, instruction.immediate, instruction.y); break;
+                case SUB: registry[instruction.x] -= valueOf(registry, instruction.immediate, instruction.y); break;
+                case MUL: registry[instruction.x] *= valueOf(registry, instruction.immediate, instruction.y); break;
+                case DIV: {
+                    int divisor = valueOf(registry, instruction.immediate, instruction.y);
+                    if(divisor == 0)
+                        return result(loader, Fault.DIVISION_BY_ZERO, i, output.toString(), registry);
+                    registry[instruction.x] /= divisor;
+                } break;
+
+                case JMP: i = instruction.x - 1; break;
+                case CMP: compare = Integer.compare(valueOf(registry, instruction.immediateX, instruction.x), valueOf(registry, instruction.immediate, instruction.y)); break;
+                case JNE: if(compare != 0) i = instruction.x - 1; break;
+                case JE:  if(compare == 0) i = instruction.x - 1; break;
+                case JGE: if(compare >= 0) i = instruction.x - 1; break;
+                case JG:  if(compare > 0)  i = instruction.x - 1; break;
+                case JLE: if(compare <= 0) i = instruction.x - 1; break;
+                case JL:  if(compare < 0)  i = instruction.x - 1; break;
+
+                case CALL: {
+                    if(depth == stack.length)
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    stack[depth++] = i;
+                    i = instruction.x - 1;
+                } break;
+                case RET: {
+                    if(depth == 0)
+                        return result(loader, Fault.STACK_UNDERFLOW, i, output.toString(), registry);
+                    i = stack[--depth];
+                } break;
+
+                case MSG: for(int j = 0; j < instruction.text.length; j++)
+                              if(instruction.text[j] != null) output.append(instruction.text[j]);
+                              else output.append(registry[instruction.arguments[j]]); break;
+
+                case END: return result(loader, Fault.NONE, -1, output.toString(), registry);
+
+            }
+
+        }
+
+        return result(loader, Fault.MISSING_END, -1, output.toString(), registry);
+
+    }
+
+    private static int valueOf(int[] registry, boolean immediate, int operand) {
+        return immediate ? operand : registry[operand];
+    }
+
+    private static ExecutionResult result(Loader loader, Fault fault, int line, String output, int[] registry) {
+        LinkedHashMap<String, Integer> registers = new LinkedHashMap<String, Integer>();
+        for(String register : loader.registers.keySet())
+            registers.put(register, registry[loader.registers.get(register)]);
+        return new ExecutionResult(fault, line, output, registers);
+    }
+
+    /**
+     * A statement with its operands classified. Register operands hold an index into the registry,
+     * immediate operands hold their value and jump operands hold the line of their label.
+     */
+    private static final class Instruction {
+
+        private int opcode;
+        private int x, y;
+        private boolean immediateX, immediate;
+        // msg: literal text of each argument, or null where the argument is a register
+        private String[] text;
+        private int[] arguments;
+
+    }
+
+    /**
+     * Cleans the source, defines labels and classifies every operand before execution.
+     * Records the first fault found rather than throwing.
+     */
+    private static final class Loader {
+
+        private final HashMap<String, Integer> labels = new HashMap<String, Integer>();
+        private final LinkedHashMap<String, Integer> registers = new LinkedHashMap<String, Integer>();
+        private final HashSet<String> written = new HashSet<String>();
+        private Fault fault = Fault.NONE;
+        private int faultLine = -1;
+
+        private Instruction[] load(String input) {
+
+            // convert input into a list of lines
+            ArrayList<String> program = new ArrayList<String>(Arrays.asList(input.split("\n")));
+
+            for(int i = 0; i < program.size(); i++) {
+                // retrieve instruction line
+                String instruction = program.get(i);
+                // purge comments
+                if(instruction.contains(";"))
+                    instruction = instruction.substring(0, instruction.indexOf(';'));
+                // remove leading/trailing whitespaces
+                instruction = instruction.trim();
+                // remove excess spaces between parameters, excluding String literals
+                instruction.replaceAll("[\\s]+(?=[^']*(?:'[^']*'[^']*)*$)", " ");
+
+                if(instruction.contains(":")) {
+                    String temp = instruction.split(" ")[0];
+                    if(temp.endsWith(":")) {
+                        labels.put(instruction.substring(0, instruction.indexOf(':')), i);
+                        instruction = instruction.substring(temp.length()).trim();
+                    }
                 }
+
+                program.set(i, instruction);
+
             }
-            
-            program.set(i, instruction);
-            
+
+            // Split statements by spaces, and note every register that is assigned by mov
+            String[][] statements = new String[program.size()][];
+            for(int i = 0; i < statements.length; i++) {
+                statements[i] = program.get(i).split("[, ]+(?=[^']*(?:'[^']*'[^']*)*$)");
+                if(statements[i].length > 1 && statements[i][0].equals("mov"))
+                    written.add(statements[i][1]);
+            }
+
+            Instruction[] instructions = new Instruction[statements.length];
+            for(int i = 0; i < statements.length; i++)
+                instructions[i] = classify(statements[i], i);
+
+            return instructions;
+
         }
-      
-        // Execute Program
-        for(int i = 0; i < program.size(); i++) {
-            
-            // Split statement by spaces 
-            String[] statement = program.get(i).split("[, ]+(?=[^']*(?:'[^']*'[^']*)*$)");
-            
-            switch(statement[0]) {
-                
-                case "mov": registry.put(statement[1], valueOf(registry, statement[2])); break;
-                
-                case "inc": registry.put(statement[1], registry.get(statement[1]) + 1); break;
-                case "dec": registry.put(statement[1], registry.get(statement[1]) - 1); break;
-                
-                case "add": registry.put(statement[1], registry.get(statement[1]) + valueOf(registry, statement[2])); break;
-                case "sub": registry.put(statement[1], registry.get(statement[1]) - valueOf(registry, statement[2])); break;
-                case "mul": registry.put(statement[1], registry.get(statement[1]) * valueOf(registry, statement[2])); break;
-                case "div": registry.put(statement[1], registry.get(statement[1]) / valueOf(registry, statement[2])); break;
-                
-                case "jmp": i = labels.get(statement[1]) - 1; break;
-                case "cmp": compare = valueOf(registry, statement[1]) - valueOf(registry, statement[2]); break;
-                case "jne": if(compare != 0) i = labels.get(statement[1]) - 1; break;
-                case "je":  if(compare == 0) i = labels.get(statement[1]) - 1; break;
-                case "jge": if(compare >= 0) i = labels.get(statement[1]) - 1; break;
-                case "jg":  if(compare > 0)  i = labels.get(statement[1]) - 1; break;
-                case "jle": if(compare <= 0) i = labels.get(statement[1]) - 1; break;
-                case "jl":  if(compare < 0)  i = labels.get(statement[1]) - 1; break;
-                
-                case "call": stack.add(i); i = labels.get(statement[1]) - 1; break;
-                case "ret": i = stack.removeLast(); break;
-                
-                case "msg": for(int j = 1; j < statement.length; j++) output += (statement[j].contains("'"))
-                			? statement[j].substring(1, statement[j].length() - 1) 
-                			: valueOf(registry, statement[j]); break;
-                
-                case "end": return output;
-                
+
+        private Instruction classify(String[] statement, int line) {
+
+            Instruction instruction = new Instruction();
+
+            // A line of nothing but separators has neither a mnemonic nor operands
+            if(statement.length == 0) {
+                fail(Fault.INVALID_ARITY, line);
+                return instruction;
+            }
+
+            Integer opcode = OPCODES.get(statement[0]);
+            if(opcode == null) {
+                fail(Fault.UNKNOWN_INSTRUCTION, line);
+                return instruction;
             }
-            
+
+            int operands = statement.length - 1;
+            switch(instruction.opcode = opcode) {
+
+                case NOP: case RET: case END:
+                    if(operands != 0) fail(Fault.INVALID_ARITY, line); break;
+
+                case INC: case DEC:
+                    if(operands != 1) fail(Fault.INVALID_ARITY, line);
+                    else instruction.x = destination(statement[1], line, true); break;
+
+                case MOV: case ADD: case SUB: case MUL: case DIV:
+                    if(operands != 2) fail(Fault.INVALID_ARITY, line);
+                    else {
+                        instruction.x = destination(statement[1], line, opcode != MOV);
+                        instruction.immediate = Operands.isImmediate(statement[2]);
+                        instruction.y = source(statement[2], line);
+                    } break;
+
+                case CMP:
+                    if(operands != 2) fail(Fault.INVALID_ARITY, line);
+                    else {
+                        instruction.immediateX = Operands.isImmediate(statement[1]);
+                        instruction.x = source(statement[1], line);
+                        instruction.immediate = Operands.isImmediate(statement[2]);
+                        instruction.y = source(statement[2], line);
+                    } break;
+
+                case JMP: case JNE: case JE: case JGE: case JG: case JLE: case JL: case CALL:
+                    if(operands != 1) fail(Fault.INVALID_ARITY, line);
+                    else if(!labels.containsKey(statement[1])) fail(Fault.UNKNOWN_LABEL, line);
+                    else instruction.x = labels.get(statement[1]); break;
+
+                case MSG: {
+                    if(operands == 0) fail(Fault.INVALID_ARITY, line);
+                    instruction.text = new String[operands];
+                    instruction.arguments = new int[operands];
+                    for(int j = 0; j < operands; j++) {
+                        String argument = statement[j + 1];
+                        if(Operands.isLiteral(argument))
+                            instruction.text[j] = argument.substring(1, argument.length() - 1);
+                        else if(Operands.isImmediate(argument))
+                            instruction.text[j] = String.valueOf(source(argument, line));
+                        else instruction.arguments[j] = source(argument, line);
+                    }
+                } break;
+
+            }
+
+            return instruction;
+
         }
-      
-        return null;
-      
-    }
-  
-    private static int valueOf(HashMap<String, Integer> registry, String string) {
-        try {
-            return Integer.parseInt(string);
-        } catch(NumberFormatException nfe) {
-            return registry.get(string);
+
+        /**
+         * Classifies an operand that is written to; it must name a register.
+         * Unless it is only assigned, it is read first, and so must be assigned somewhere in the program.
+         * @return register index
+         */
+        private int destination(String operand, int line, boolean read) {
+            if(!Operands.isIdentifier(operand)) {
+                fail(Fault.INVALID_OPERAND, line);
+                return 0;
+            }
+            if(read && !written.contains(operand))
+                fail(Fault.UNKNOWN_REGISTER, line);
+            return register(operand);
         }
+
+        /**
+         * Classifies an operand that is read from; it may be an immediate or a register that is assigned somewhere in the program.
+         * @return immediate value or register index
+         */
+        private int source(String operand, int line) {
+            if(Operands.isImmediate(operand))
+                return Operands.parseImmediate(operand);
+            if(!Operands.isIdentifier(operand)) {
+                fail(Fault.INVALID_OPERAND, line);
+                return 0;
+            }
+            if(!written.contains(operand))
+                fail(Fault.UNKNOWN_REGISTER, line);
+            return register(operand);
+        }
+
+        private int register(String name) {
+            Integer index = registers.get(name);
+            if(index == null)
+                registers.put(name, index = registers.size());
+            return index;
+        }
+
+        private void fail(Fault fault, int line) {
+            if(this.fault == Fault.NONE) {
+                this.fault = fault;
+                faultLine = line;
+            }
+        }
+
     }
-    
+
 }
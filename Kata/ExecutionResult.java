@@ -0,0 +1,102 @@
+package interpreters;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The outcome of running a program: its output, the final state of its registers, and the fault that stopped it, if any.
+ */
+public final class ExecutionResult {
+
+	/**
+	 * Reasons a program may fail to run to its end instruction.
+	 * Load faults are detected while the program is prepared, before any instruction is executed.
+	 */
+	public enum Fault {
+
+		NONE(false),
+
+		// Load faults
+		UNKNOWN_INSTRUCTION(true), 	// Mnemonic is not supported
+		INVALID_ARITY(true), 		// Wrong number of operands for the mnemonic
+		INVALID_OPERAND(true), 		// Operand is malformed, or an immediate where a destination is required
+		UNKNOWN_LABEL(true), 		// Jump or call to a label that is never defined
+		UNKNOWN_REGISTER(true), 	// Read from a register that is never assigned
+
+		// Runtime faults
+		DIVISION_BY_ZERO(false),
+		STACK_UNDERFLOW(false), 	// ret without a matching call
+		MISSING_END(false); 		// Program ran past its last line without reaching end; reported without a line
+
+		private final boolean load;
+
+		private Fault(boolean load) {
+			this.load = load;
+		}
+
+		/**
+		 * Returns true if this fault is detected before execution.
+		 * @return load
+		 */
+		public boolean isLoadFault() {
+			return load;
+		}
+
+	}
+
+	private final Fault fault;
+	private final int line;
+	private final String output;
+	private final Map<String, Integer> registers;
+
+	/**
+	 * @param fault the fault that stopped the program, or NONE if it reached an end instruction
+	 * @param line the zero-based source line of the fault, or -1
+	 * @param output the output produced before the program stopped
+	 * @param registers the final value of each register
+	 */
+	public ExecutionResult(Fault fault, int line, String output, Map<String, Integer> registers) {
+		this.fault = fault;
+		this.line = line;
+		this.output = output;
+		this.registers = Collections.unmodifiableMap(registers);
+	}
+
+	/**
+	 * Returns true if the program terminated at an end instruction.
+	 * @return success
+	 */
+	public boolean isSuccess() {
+		return fault == Fault.NONE;
+	}
+
+	public Fault getFault() {
+		return fault;
+	}
+
+	/**
+	 * Returns the zero-based source line where the fault occurred, or -1 if there is none or the fault is MISSING_END.
+	 * @return line
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Returns the output produced by the program, including partial output when it faulted.
+	 * @return output
+	 */
+	public String getOutput() {
+		return output;
+	}
+
+	public Map<String, Integer> getRegisters() {
+		return registers;
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess() ? output : fault + " at line " + line + ": " + output;
+	}
+
+}
@@ -0,0 +1,70 @@
+package interpreters;
+
+/**
+ * Classifies operand tokens without relying on exceptions, so that programs can be checked once when they are loaded.
+ */
+public final class Operands {
+
+	private Operands() {}
+
+	/**
+	 * Returns true if the operand is an optionally signed decimal integer that fits in an int, as accepted by Integer.parseInt.
+	 * Leading zeros are allowed.
+	 * @param operand
+	 * @return immediate
+	 */
+	public static boolean isImmediate(String operand) {
+		int start = operand.startsWith("-") || operand.startsWith("+") ? 1 : 0;
+		if(operand.length() == start)
+			return false;
+		long value = 0;
+		for(int i = start; i < operand.length(); i++) {
+			char c = operand.charAt(i);
+			if(c < '0' || c > '9')
+				return false;
+			value = value * 10 + (c - '0');
+			// Stop before the value can overflow; nothing past the magnitude of Integer.MIN_VALUE fits
+			if(value > (long) Integer.MAX_VALUE + 1)
+				return false;
+		}
+		return operand.charAt(0) == '-' ? -value >= Integer.MIN_VALUE : value <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the value of an operand for which {@link #isImmediate(String)} is true.
+	 * Its magnitude never exceeds that of Integer.MIN_VALUE, so accumulating it in a long cannot overflow.
+	 * @param operand
+	 * @return value
+	 */
+	public static int parseImmediate(String operand) {
+		boolean negative = operand.startsWith("-");
+		long value = 0;
+		for(int i = negative || operand.startsWith("+") ? 1 : 0; i < operand.length(); i++)
+			value = value * 10 + (operand.charAt(i) - '0');
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * Returns true if the operand may name a register, variable or label: a letter or underscore followed by letters, digits or underscores.
+	 * @param operand
+	 * @return identifier
+	 */
+	public static boolean isIdentifier(String operand) {
+		if(operand.isEmpty() || !(Character.isLetter(operand.charAt(0)) || operand.charAt(0) == '_'))
+			return false;
+		for(int i = 1; i < operand.length(); i++)
+			if(!(Character.isLetterOrDigit(operand.charAt(i)) || operand.charAt(i) == '_'))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns true if the operand is a single quoted string literal.
+	 * @param operand
+	 * @return literal
+	 */
+	public static boolean isLiteral(String operand) {
+		return operand.length() > 1 && operand.startsWith("'") && operand.endsWith("'");
+	}
+
+}